@@ -0,0 +1,131 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.Deflater;
+
+/**
+ * Compares bytes on the wire for a broadcast chat message over the two STOMP endpoints:
+ * SockJS (/ws — frame JSON-escaped inside {@code a["..."]}) and native WebSocket
+ * (/ws-native — raw STOMP frame), each with and without permessage-deflate
+ * (raw DEFLATE, context takeover, sync flush with the 00 00 ff ff tail stripped).
+ *
+ * Kept outside the application sources and dependency-free, so it runs straight from source:
+ *   java bench/FrameOverheadBenchmark.java [messages]
+ *
+ * Only sizes are reported: the SockJS escaping here is a stand-in for Spring's Jackson
+ * codec, so timing it would say nothing about the real encode cost.
+ */
+public class FrameOverheadBenchmark {
+
+    private static final String[] WORDS = {
+            "hey", "anyone", "seen", "the", "deploy", "logs", "from", "today", "looks", "like",
+            "websocket", "latency", "spiked", "again", "I'll", "check", "the", "broker", "queue",
+            "thanks", "👍", "lunch?", "meeting", "moved", "to", "3pm", "PR", "is", "ready", "for", "review"
+    };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        String[] frames = buildFrames(count);
+
+        System.out.printf("%d broadcast frames, avg raw STOMP frame %.1f bytes%n%n",
+                count, averageUtf8(frames));
+        System.out.printf("%-22s %10s %10s %10s%n", "variant", "payload B", "wire B", "vs SockJS");
+        double[] baseline = measure(frames, true, false);
+        print("SockJS (/ws)", baseline, baseline);
+        print("SockJS + deflate", measure(frames, true, true), baseline);
+        print("native (/ws-native)", measure(frames, false, false), baseline);
+        print("native + deflate", measure(frames, false, true), baseline);
+    }
+
+    private static void print(String name, double[] result, double[] baseline) {
+        System.out.printf("%-22s %10.1f %10.1f %9.0f%%%n",
+                name, result[0], result[1], 100 * result[1] / baseline[1]);
+    }
+
+    /** Returns {avg payload bytes, avg wire bytes} per message */
+    private static double[] measure(String[] frames, boolean sockJs, boolean deflate) {
+        Deflater deflater = deflate ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        byte[] buffer = new byte[64 * 1024];
+        long payloadBytes = 0;
+        long wireBytes = 0;
+
+        for (String frame : frames) {
+            String text = sockJs ? "a[\"" + escapeForSockJs(frame) + "\"]" : frame;
+            byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+            int length = payload.length;
+            if (deflater != null) {
+                deflater.setInput(payload);
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH) - 4;
+            }
+            payloadBytes += length;
+            wireBytes += length + headerLength(length);
+        }
+        if (deflater != null) deflater.end();
+
+        int n = frames.length;
+        return new double[] {(double) payloadBytes / n, (double) wireBytes / n};
+    }
+
+    /** Server → client frames are unmasked: 2-byte header, 4 with 16-bit length, 10 with 64-bit */
+    private static int headerLength(int payloadLength) {
+        if (payloadLength <= 125) return 2;
+        if (payloadLength <= 0xFFFF) return 4;
+        return 10;
+    }
+
+    /** JSON string escaping with the same output as SockJS's codec, including the STOMP NUL terminator */
+    private static String escapeForSockJs(String frame) {
+        StringBuilder sb = new StringBuilder(frame.length() + 32);
+        for (int i = 0; i < frame.length(); i++) {
+            char c = frame.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || (c >= 0x200c && c <= 0x200f) || (c >= 0x2028 && c <= 0x202f)
+                            || (c >= 0xd800 && c <= 0xdfff) || (c >= 0xfff0)) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String[] buildFrames(int count) {
+        Random random = new Random(42);
+        String[] frames = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder content = new StringBuilder();
+            int words = 3 + random.nextInt(18);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) content.append(' ');
+                content.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            String body = "{\"id\":null,\"content\":\"" + content + "\",\"sender\":\"user" + random.nextInt(50)
+                    + "\",\"roomId\":\"general\",\"type\":\"CHAT\",\"timestamp\":\"2026-10-19T12:"
+                    + String.format("%02d:%02d.%03d", random.nextInt(60), random.nextInt(60), random.nextInt(1000))
+                    + "\",\"clientMessageId\":\"" + new UUID(random.nextLong(), random.nextLong()) + "\"}";
+            frames[i] = "MESSAGE\n"
+                    + "destination:/topic/room/general\n"
+                    + "content-type:application/json\n"
+                    + "subscription:sub-3\n"
+                    + "message-id:k3j1x2mq-" + i + "\n"
+                    + "content-length:" + body.getBytes(StandardCharsets.UTF_8).length + "\n"
+                    + "\n"
+                    + body + "\u0000";
+        }
+        return frames;
+    }
+
+    private static double averageUtf8(String[] frames) {
+        long total = 0;
+        for (String frame : frames) total += frame.getBytes(StandardCharsets.UTF_8).length;
+        return (double) total / frames.length;
+    }
+}
@@ -0,0 +1,193 @@
+package com.chatapp.service;
+
+import com.chatapp.config.SessionHeaders;
+import com.chatapp.model.ChatDTOs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether this node accepts new WebSocket connections, and drains it on shutdown.
+ *
+ * New handshakes are refused (with a Retry-After hint) when the node is at its
+ * connection limit, when the STOMP inbound queue or old-gen occupancy after the last GC
+ * crosses its threshold, or while draining. Draining closes sessions in small batches across the drain window
+ * instead of all at once; each batch is told one step ahead of its close to come back
+ * within a step of it, so reconnects are spread the same way the closes are.
+ */
+@Slf4j
+@Service
+public class AdmissionControlService {
+
+    private final ThreadPoolTaskExecutor inboundExecutor;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.admission.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${chat.admission.max-inbound-queue:1000}")
+    private int maxInboundQueue;
+
+    @Value("${chat.admission.max-heap-ratio:0.90}")
+    private double maxHeapRatio;
+
+    @Value("${chat.admission.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    @Value("${chat.admission.drain-duration-ms:20000}")
+    private long drainDurationMs;
+
+    @Value("${chat.admission.drain-step-ms:500}")
+    private long drainStepMs;
+
+    // WebSocket session ID → live session (registered by the transport decorator)
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    private volatile boolean draining;
+
+    // Tenured pool — the one heap pool with both usage and collection-usage thresholds
+    // (G1 Old Gen, PS Old Gen, Tenured Gen); null on collectors without one
+    private final MemoryPoolMXBean tenuredPool = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP
+                    && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported())
+            .findFirst()
+            .orElse(null);
+
+    public AdmissionControlService(@Qualifier("clientInboundChannelExecutor") @Lazy ThreadPoolTaskExecutor inboundExecutor,
+                                   @Lazy SimpMessagingTemplate messagingTemplate) {
+        this.inboundExecutor = inboundExecutor;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Seconds the client should wait before retrying, or 0 if the connection is admitted.
+     * Jittered so rejected clients don't come back in lockstep.
+     */
+    public int retryAfterSeconds() {
+        String reason = rejectionReason();
+        if (reason == null) return 0;
+        log.debug("Rejecting connection: {}", reason);
+        return retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public int getConnectionCount() {
+        return sessions.size();
+    }
+
+    public void register(WebSocketSession session) {
+        sessions.put(session.getId(), session);
+    }
+
+    public void unregister(WebSocketSession session) {
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * Runs before the web server and broker stop: refuse new handshakes, then close
+     * sessions batch by batch across the drain window. Each step notifies the next batch
+     * and closes the one notified a step earlier, so the notice is out before its close.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void drain() {
+        draining = true;
+        List<WebSocketSession> remaining = new ArrayList<>(sessions.values());
+        if (remaining.isEmpty()) return;
+        log.info("Draining {} WebSocket sessions over {} ms", remaining.size(), drainDurationMs);
+
+        long steps = Math.max(1, drainDurationMs / drainStepMs);
+        int batchSize = (int) Math.max(1, (remaining.size() + steps - 1) / steps);
+        List<WebSocketSession> notified = List.of();
+        for (int i = 0; i < remaining.size() || !notified.isEmpty(); i += batchSize) {
+            List<WebSocketSession> next = i < remaining.size()
+                    ? remaining.subList(i, Math.min(i + batchSize, remaining.size()))
+                    : List.of();
+            for (WebSocketSession session : next) {
+                // Clients count this from their disconnect, which follows one step from now
+                sendDrainNotice(session.getId(), ThreadLocalRandom.current().nextLong(drainStepMs + 1));
+            }
+            for (WebSocketSession session : notified) {
+                close(session);
+            }
+            notified = next;
+            if (notified.isEmpty()) break;
+            try {
+                Thread.sleep(drainStepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                notified.forEach(this::close);
+                break;
+            }
+        }
+        log.info("Drain complete");
+    }
+
+    /** Null when admitted, otherwise why not */
+    private String rejectionReason() {
+        if (draining) {
+            return "draining";
+        }
+        if (sessions.size() >= maxConnections) {
+            return "connection limit " + maxConnections + " reached";
+        }
+        int queued = inboundExecutor.getThreadPoolExecutor().getQueue().size();
+        if (queued >= maxInboundQueue) {
+            return "inbound queue depth " + queued;
+        }
+        if (liveHeapRatio() >= maxHeapRatio) {
+            return "old-gen occupancy after GC above " + maxHeapRatio;
+        }
+        return null;
+    }
+
+    /**
+     * Fraction of the tenured pool still in use after its last collection, so garbage that
+     * simply hasn't been collected yet doesn't count. 0 until the first old-gen collection;
+     * falls back to current heap usage when the collector exposes no tenured pool.
+     */
+    private double liveHeapRatio() {
+        MemoryUsage usage = tenuredPool != null ? tenuredPool.getCollectionUsage() : null;
+        if (usage == null) {
+            usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        }
+        long max = usage.getMax() > 0 ? usage.getMax() : Runtime.getRuntime().maxMemory();
+        return max > 0 ? (double) usage.getUsed() / max : 0;
+    }
+
+    private void sendDrainNotice(String sessionId, long retryAfterMs) {
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/drain",
+                ChatDTOs.DrainNoticePayload.builder().retryAfterMs(retryAfterMs).reason("Server restarting").build(),
+                SessionHeaders.forSession(sessionId));
+    }
+
+    private void close(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SERVICE_RESTARTED);
+        } catch (IOException e) {
+            log.debug("Failed to close session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -2,12 +2,15 @@ package com.chatapp.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 import java.util.concurrent.Executor;
 
 @Configuration
-public class AsyncConfig {
+public class AsyncConfig implements SchedulingConfigurer {
 
     @Bean(name = "messageExecutor")
     public Executor messageExecutor() {
@@ -19,4 +22,24 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Dedicated pool for @Scheduled jobs (directory deltas, unread pushes, flushes, snapshots).
+     * Without it Spring may pick up the broker's messageBrokerTaskScheduler, and a slow
+     * flush or snapshot would delay STOMP heartbeats.
+     */
+    @Bean(name = "chatTaskScheduler")
+    public ThreadPoolTaskScheduler chatTaskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.setThreadNamePrefix("ChatScheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(10);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(chatTaskScheduler());
+    }
 }
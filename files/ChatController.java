@@ -1,16 +1,23 @@
 package com.chatapp.controller;
 
+import com.chatapp.config.SessionHeaders;
 import com.chatapp.model.ChatDTOs;
 import com.chatapp.model.Message;
+import com.chatapp.service.AdmissionControlService;
+import com.chatapp.service.MessageDedupService;
 import com.chatapp.service.MessageService;
 import com.chatapp.service.OnlineUserService;
+import com.chatapp.service.RoomDirectoryService;
+import com.chatapp.service.RoomPresenceService;
 import com.chatapp.service.RoomService;
+import com.chatapp.service.UnreadService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 import java.util.Map;
@@ -23,6 +30,8 @@ import java.util.Map;
  *  Client → /app/chat.send       → broadcast a message
  *  Client → /app/chat.typing     → broadcast typing indicator
  *  Client → /app/chat.leave      → leave a room
+ *  Client → /app/chat.users      → request a page of a room's member list
+ *  Client ⇢ SUBSCRIBE /app/rooms → one-shot room directory snapshot
  */
 @Slf4j
 @Controller
@@ -33,6 +42,11 @@ public class ChatController {
     private final MessageService messageService;
     private final OnlineUserService onlineUserService;
     private final RoomService roomService;
+    private final UnreadService unreadService;
+    private final RoomDirectoryService roomDirectoryService;
+    private final RoomPresenceService roomPresenceService;
+    private final AdmissionControlService admissionControlService;
+    private final MessageDedupService messageDedupService;
 
     // ── Join Room ──────────────────────────────────────────────────────────────
 
@@ -44,6 +58,12 @@ public class ChatController {
         String username = sanitize(request.getUsername());
         String roomId = request.getRoomId();
 
+        // No new joins while this node drains for a deploy
+        if (admissionControlService.isDraining()) {
+            sendError(sessionId, "Server is restarting, please reconnect");
+            return;
+        }
+
         // Validate
         if (username == null || username.isBlank() || !roomService.roomExists(roomId)) {
             sendError(sessionId, "Invalid username or room ID");
@@ -66,7 +86,11 @@ public class ChatController {
         var history = messageService.getRecentMessages(roomId);
         messagingTemplate.convertAndSendToUser(sessionId, "/queue/history",
                 ChatDTOs.HistoryPayload.builder().roomId(roomId).messages(history).build(),
-                buildNativeHeaders(sessionId));
+                SessionHeaders.forSession(sessionId));
+
+        // Joining shows the full history, so the room is now read
+        unreadService.markRead(username, roomId);
+        unreadService.pushUnread(sessionId, username);
 
         // 2. Broadcast JOIN system message to room
         var joinMsg = buildSystemMessage(username + " joined the room", roomId, Message.MessageType.JOIN);
@@ -74,28 +98,61 @@ public class ChatController {
                 roomId, Message.MessageType.JOIN);
         messagingTemplate.convertAndSend("/topic/room/" + roomId, joinMsg);
 
-        // 3. Broadcast updated user list
-        broadcastUserList(roomId);
+        // 3. Broadcast updated presence (full list, or counts-only for large rooms)
+        roomPresenceService.userJoined(roomId, username);
     }
 
     // ── Send Message ───────────────────────────────────────────────────────────
 
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload ChatDTOs.SendMessageRequest request) {
+    public void sendMessage(@Payload ChatDTOs.SendMessageRequest request,
+                            SimpMessageHeaderAccessor headerAccessor) {
 
+        String sessionId = headerAccessor.getSessionId();
         String content = sanitize(request.getContent());
         String sender = sanitize(request.getSender());
         String roomId = request.getRoomId();
+        String clientMessageId = request.getClientMessageId();
 
         if (content == null || content.isBlank() || sender == null || sender.isBlank()) {
             return;
         }
+        if (!roomDirectoryService.hasRoom(roomId)) {
+            sendError(sessionId, "Invalid room ID");
+            return;
+        }
+
+        // Drop retries of a send we already accepted — re-ack instead of persisting twice
+        var claim = messageDedupService.claim(roomId, sender, clientMessageId);
+        if (claim.isDuplicate()) {
+            log.debug("Duplicate send '{}' from '{}' in room '{}' dropped", clientMessageId, sender, roomId);
+            claim.getEntry().getMessageId().thenAccept(id ->
+                    sendAck(sessionId, clientMessageId, roomId, id, claim.getSequence(), true));
+            return;
+        }
 
         log.debug("Message from '{}' in room '{}': {}", sender, roomId, content);
 
         // Async persist — don't block the WebSocket thread
         messageService.saveMessageAsync(content, sender, roomId, Message.MessageType.CHAT)
-                .thenAccept(saved -> log.debug("Message id={} persisted", saved.getId()));
+                .whenComplete((saved, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to persist message from '{}' in room '{}'", sender, roomId, error);
+                        if (claim.getEntry() != null) {
+                            // The broadcast below already went out, so the client's resend is
+                            // fanned out again; chat.js drops the repeat by clientMessageId
+                            messageDedupService.release(roomId, sender, clientMessageId);
+                            claim.getEntry().getMessageId().completeExceptionally(error);
+                            sendNack(sessionId, clientMessageId, roomId, claim.getSequence());
+                        }
+                        return;
+                    }
+                    log.debug("Message id={} persisted", saved.getId());
+                    if (claim.getEntry() != null) {
+                        claim.getEntry().getMessageId().complete(saved.getId());
+                        sendAck(sessionId, clientMessageId, roomId, saved.getId(), claim.getSequence(), false);
+                    }
+                });
 
         // Broadcast immediately (don't wait for persistence)
         var payload = ChatDTOs.MessagePayload.builder()
@@ -104,6 +161,7 @@ public class ChatController {
                 .roomId(roomId)
                 .type(Message.MessageType.CHAT)
                 .timestamp(java.time.LocalDateTime.now())
+                .clientMessageId(claim.getEntry() != null ? clientMessageId : null)
                 .build();
 
         messagingTemplate.convertAndSend("/topic/room/" + roomId, payload);
@@ -128,6 +186,7 @@ public class ChatController {
         String sessionId = headerAccessor.getSessionId();
 
         onlineUserService.removeUser(sessionId);
+        unreadService.markRead(username, roomId);
 
         // Broadcast LEAVE system message
         var leaveMsg = buildSystemMessage(username + " left the room", roomId, Message.MessageType.LEAVE);
@@ -135,20 +194,37 @@ public class ChatController {
                 roomId, Message.MessageType.LEAVE);
         messagingTemplate.convertAndSend("/topic/room/" + roomId, leaveMsg);
 
-        // Broadcast updated user list
-        broadcastUserList(roomId);
+        // Broadcast updated presence
+        roomPresenceService.userLeft(roomId, username);
 
         log.info("User '{}' left room '{}'", username, roomId);
     }
 
-    // ── Helpers ────────────────────────────────────────────────────────────────
+    // ── Member List Pages ──────────────────────────────────────────────────────
 
-    private void broadcastUserList(String roomId) {
-        var users = onlineUserService.getUsersInRoom(roomId);
-        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/users",
-                ChatDTOs.UsersPayload.builder().roomId(roomId).users(users).build());
+    @MessageMapping("/chat.users")
+    public void requestUsersPage(@Payload ChatDTOs.UsersPageRequest request,
+                                 SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        if (!roomDirectoryService.hasRoom(request.getRoomId())) {
+            sendError(sessionId, "Invalid room ID");
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/users",
+                roomPresenceService.getPage(request.getRoomId(), request.getPage(), request.getSize()),
+                SessionHeaders.forSession(sessionId));
+    }
+
+    // ── Room Directory ─────────────────────────────────────────────────────────
+
+    /** Snapshot returned straight to the subscriber; live deltas follow on /topic/rooms */
+    @SubscribeMapping("/rooms")
+    public ChatDTOs.RoomDirectoryPayload roomDirectory() {
+        return roomDirectoryService.snapshot();
     }
 
+    // ── Helpers ────────────────────────────────────────────────────────────────
+
     private ChatDTOs.MessagePayload buildSystemMessage(String content, String roomId,
                                                         Message.MessageType type) {
         return ChatDTOs.MessagePayload.builder()
@@ -160,19 +236,35 @@ public class ChatController {
                 .build();
     }
 
+    private void sendAck(String sessionId, String clientMessageId, String roomId,
+                         Long messageId, long sequence, boolean duplicate) {
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/ack",
+                ChatDTOs.AckPayload.builder()
+                        .clientMessageId(clientMessageId)
+                        .roomId(roomId)
+                        .id(messageId)
+                        .sequence(sequence)
+                        .duplicate(duplicate)
+                        .build(),
+                SessionHeaders.forSession(sessionId));
+    }
+
+    /** Tell the sender its message wasn't persisted so it resends now instead of on reconnect */
+    private void sendNack(String sessionId, String clientMessageId, String roomId, long sequence) {
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/ack",
+                ChatDTOs.AckPayload.builder()
+                        .clientMessageId(clientMessageId)
+                        .roomId(roomId)
+                        .sequence(sequence)
+                        .failed(true)
+                        .build(),
+                SessionHeaders.forSession(sessionId));
+    }
+
     private void sendError(String sessionId, String message) {
         messagingTemplate.convertAndSendToUser(sessionId, "/queue/errors",
                 ChatDTOs.ErrorPayload.builder().message(message).code("BAD_REQUEST").build(),
-                buildNativeHeaders(sessionId));
-    }
-
-    /** Build headers that correctly target a session ID when using convertAndSendToUser */
-    private org.springframework.messaging.MessageHeaders buildNativeHeaders(String sessionId) {
-        var headerAccessor = org.springframework.messaging.simp.SimpMessageHeaderAccessor.create(
-                org.springframework.messaging.simp.SimpMessageType.MESSAGE);
-        headerAccessor.setSessionId(sessionId);
-        headerAccessor.setLeaveMutable(true);
-        return headerAccessor.getMessageHeaders();
+                SessionHeaders.forSession(sessionId));
     }
 
     private String sanitize(String input) {
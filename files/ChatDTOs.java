@@ -3,6 +3,7 @@ package com.chatapp.model;
 import lombok.*;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * All DTOs (Data Transfer Objects) used in WebSocket communication.
@@ -24,6 +25,15 @@ public class ChatDTOs {
         private String content;
         private String sender;
         private String roomId;
+        private String clientMessageId;   // optional; makes retried sends idempotent
+    }
+
+    /** Request for one page of a room's member list (large rooms) */
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class UsersPageRequest {
+        private String roomId;
+        private int page;
+        private int size;
     }
 
     /** Sent when typing status changes */
@@ -45,6 +55,21 @@ public class ChatDTOs {
         private String roomId;
         private Message.MessageType type;
         private LocalDateTime timestamp;
+        private String clientMessageId;
+    }
+
+    /**
+     * Ack for a send carrying a client message id — id is the persisted message id.
+     * failed = the message was broadcast but not persisted; resend it with the same id.
+     */
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class AckPayload {
+        private String clientMessageId;
+        private String roomId;
+        private Long id;
+        private long sequence;
+        private boolean duplicate;
+        private boolean failed;
     }
 
     /** Room info payload */
@@ -56,11 +81,37 @@ public class ChatDTOs {
         private int onlineCount;
     }
 
-    /** User list payload for a room */
+    /** Room directory update on /topic/rooms — full SNAPSHOT on subscribe, then DELTAs of changed rooms */
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class RoomDirectoryPayload {
+        private long version;
+        private Kind kind;
+        private List<RoomPayload> rooms;
+
+        public enum Kind {
+            SNAPSHOT,   // Every room; sent once per subscriber
+            DELTA       // Only rooms that were created or changed count
+        }
+    }
+
+    /** User list payload for a room — in large-room mode only count + recentlyJoined are set */
     @Data @NoArgsConstructor @AllArgsConstructor @Builder
     public static class UsersPayload {
         private String roomId;
         private List<String> users;
+        private int count;
+        private boolean large;
+        private List<String> recentlyJoined;
+    }
+
+    /** One page of a room's sorted member list */
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class UsersPagePayload {
+        private String roomId;
+        private int page;
+        private int size;
+        private int total;
+        private List<String> users;
     }
 
     /** Online count payload */
@@ -76,6 +127,20 @@ public class ChatDTOs {
         private String code;
     }
 
+    /** Unread counts per room for a user (roomId → unread messages) */
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class UnreadPayload {
+        private String username;
+        private Map<String, Long> unread;
+    }
+
+    /** Sent before this node closes a session for a deploy — reconnect after retryAfterMs */
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class DrainNoticePayload {
+        private long retryAfterMs;
+        private String reason;
+    }
+
     /** History payload — list of past messages on room join */
     @Data @NoArgsConstructor @AllArgsConstructor @Builder
     public static class HistoryPayload {
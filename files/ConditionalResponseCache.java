@@ -0,0 +1,136 @@
+package com.chatapp.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET support for read endpoints backed by in-memory version counters.
+ *
+ * Each resource key maps to the version it was last rendered at, its precomputed
+ * ETag and (optionally) the serialized JSON body. A matching If-None-Match or
+ * If-Modified-Since is answered with 304 before the body supplier runs; an unchanged
+ * version is answered from the cached bytes.
+ *
+ * Only resources with a bounded key space (one per room or global) are remembered;
+ * unbounded ones such as member pages go through {@link #respondUncached}, which still
+ * honours If-None-Match but keeps nothing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConditionalResponseCache {
+
+    // Versions restart at 0 on every boot, so tag ETags with the boot time
+    private static final String BOOT_EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.http.cache-bodies:true}")
+    private boolean cacheBodies;
+
+    // resource key → entry for its current version
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ResponseEntity<?> respond(HttpServletRequest request, String key, String version,
+                                     Supplier<Object> body) {
+        Entry entry = entries.compute(key, (k, current) -> {
+            if (current != null && current.version.equals(version)) return current;
+            // HTTP dates are whole seconds (here and in Spring's own 304 check), so each version
+            // gets a second of its own: a client holding the previous Last-Modified never matches it
+            long lastModified = System.currentTimeMillis() / 1000 * 1000;
+            if (current != null) lastModified = Math.max(lastModified, current.lastModified + 1000);
+            return new Entry(version, "\"" + key + "-" + BOOT_EPOCH + "-" + version + "\"", lastModified);
+        });
+
+        if (isNotModified(request, entry)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(entry.etag)
+                    .lastModified(entry.lastModified)
+                    .build();
+        }
+
+        byte[] json = entry.body;
+        if (json == null) {
+            json = serialize(key, body);
+            if (cacheBodies) entry.body = json;
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.etag)
+                .lastModified(entry.lastModified)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
+    }
+
+    /** ETag-only variant that stores neither the entry nor the body — no Last-Modified is sent */
+    public ResponseEntity<?> respondUncached(HttpServletRequest request, String key, String version,
+                                             Supplier<Object> body) {
+        String etag = "\"" + key + "-" + BOOT_EPOCH + "-" + version + "\"";
+        if (matchesIfNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(serialize(key, body));
+    }
+
+    private byte[] serialize(String key, Supplier<Object> body) {
+        try {
+            return objectMapper.writeValueAsBytes(body.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + key, e);
+        }
+    }
+
+    private boolean isNotModified(HttpServletRequest request, Entry entry) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesIfNoneMatch(ifNoneMatch, entry.etag);  // takes precedence over If-Modified-Since
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && entry.lastModified <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;  // unparseable date — ignore the condition
+        }
+    }
+
+    private static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        final String version;
+        final String etag;
+        final long lastModified;
+        volatile byte[] body;
+
+        Entry(String version, String etag, long lastModified) {
+            this.version = version;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
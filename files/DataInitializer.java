@@ -6,6 +6,7 @@ import com.chatapp.service.RoomService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -14,6 +15,7 @@ import java.util.List;
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@DependsOn("warmStartSnapshotService") // restore snapshot before seeding
 public class DataInitializer {
 
     private final MessageRepository messageRepository;
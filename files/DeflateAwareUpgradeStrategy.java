@@ -0,0 +1,70 @@
+package com.chatapp.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upgrade strategy for the native /ws-native endpoint that can switch permessage-deflate off.
+ *
+ * Tomcat negotiates its built-in extensions from the client's Sec-WebSocket-Extensions
+ * header regardless of what the endpoint config lists, so disabling compression means
+ * hiding that header from the container at the moment of the upgrade.
+ */
+public class DeflateAwareUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    private final boolean deflateEnabled;
+
+    public DeflateAwareUpgradeStrategy(boolean deflateEnabled) {
+        this.deflateEnabled = deflateEnabled;
+    }
+
+    @Override
+    public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+        return deflateEnabled ? super.getSupportedExtensions(request) : List.of();
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                          ServerEndpointConfig endpointConfig, Map<String, String> pathParams)
+            throws Exception {
+        super.upgradeHttpToWebSocket(deflateEnabled ? request : new WithoutExtensions(request),
+                response, endpointConfig, pathParams);
+    }
+
+    /** Servlet request with the Sec-WebSocket-Extensions header removed */
+    private static final class WithoutExtensions extends HttpServletRequestWrapper {
+
+        WithoutExtensions(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !EXTENSIONS_HEADER.equalsIgnoreCase(name))
+                    .toList());
+        }
+    }
+}
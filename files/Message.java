@@ -5,7 +5,12 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        // history and export cursors: WHERE roomId = ? ORDER BY id
+        @Index(name = "idx_messages_room_id", columnList = "roomId, id"),
+        // export date ranges: WHERE roomId = ? AND timestamp >= ? AND timestamp < ?
+        @Index(name = "idx_messages_room_timestamp", columnList = "roomId, timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
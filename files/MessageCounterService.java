@@ -0,0 +1,86 @@
+package com.chatapp.service;
+
+import com.chatapp.model.Message;
+import com.chatapp.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory per-room message counters, maintained as messages are persisted.
+ * Seeded once from the database at startup so lookups never hit COUNT(*).
+ * Key: roomId → Value: RoomCounter
+ *
+ * The count covers CHAT messages only — JOIN/LEAVE/SYSTEM noise must not show up as
+ * unread. lastMessageId covers every type, since it versions the room's history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageCounterService {
+
+    private final MessageRepository messageRepository;
+
+    // roomId → RoomCounter
+    private final Map<String, RoomCounter> counters = new ConcurrentHashMap<>();
+
+    /** Load counts for messages that were written before the app started (seed data etc.) */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCounters() {
+        for (Object[] row : messageRepository.countByTypeAndMaxIdByRoom(Message.MessageType.CHAT)) {
+            RoomCounter counter = counter((String) row[0]);
+            counter.count.accumulateAndGet(((Number) row[1]).longValue(), Math::max);
+            counter.lastMessageId.accumulateAndGet(((Number) row[2]).longValue(), Math::max);
+        }
+        log.info("Loaded message counters for {} rooms", counters.size());
+    }
+
+    /**
+     * Carry a room's count over from a warm-start snapshot. Only older messages were
+     * dropped from the restored history, so the count never goes below this.
+     */
+    public void restoreCount(String roomId, long count) {
+        counter(roomId).count.accumulateAndGet(count, Math::max);
+    }
+
+    /** Called after a message has been persisted */
+    public void onPersisted(Message message) {
+        RoomCounter counter = counter(message.getRoomId());
+        if (message.getType() == Message.MessageType.CHAT) {
+            counter.count.incrementAndGet();
+        }
+        counter.lastMessageId.accumulateAndGet(message.getId(), Math::max);
+    }
+
+    /** Number of CHAT messages in the room */
+    public long getCount(String roomId) {
+        RoomCounter counter = counters.get(roomId);
+        return counter == null ? 0 : counter.count.get();
+    }
+
+    public long getLastMessageId(String roomId) {
+        RoomCounter counter = counters.get(roomId);
+        return counter == null ? 0 : counter.lastMessageId.get();
+    }
+
+    /** Rooms that have at least one message */
+    public Set<String> getRoomIds() {
+        return counters.keySet();
+    }
+
+    private RoomCounter counter(String roomId) {
+        return counters.computeIfAbsent(roomId, id -> new RoomCounter());
+    }
+
+    private static final class RoomCounter {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong lastMessageId = new AtomicLong();
+    }
+}
@@ -0,0 +1,139 @@
+package com.chatapp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-room window of recently seen client message ids, so a send retried after a
+ * reconnect is dropped before persistence and fan-out.
+ *
+ * Each room's window is split into lock stripes (by key hash). A stripe is an
+ * insertion-ordered map, so its oldest entries sit at the head: expired or
+ * over-capacity entries are evicted from there on each insert, keeping the window
+ * bounded in both time and size. A room with no claims for a whole window holds only
+ * expired entries, so its window is dropped by a periodic sweep; room sequences are
+ * kept separately and survive that.
+ */
+@Service
+public class MessageDedupService {
+
+    private static final int STRIPES = 8;
+    private static final int MAX_CLIENT_ID_LENGTH = 64;
+
+    @Value("${chat.dedup.window-ms:120000}")
+    private long windowMs;
+
+    @Value("${chat.dedup.max-per-room:4096}")
+    private int maxPerRoom;
+
+    // roomId → RoomWindow, only for rooms with claims inside the window
+    private final Map<String, RoomWindow> windows = new ConcurrentHashMap<>();
+
+    // roomId → last assigned sequence
+    private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Assign the next room sequence to a send. With a client message id, a repeat of
+     * an id still inside the window returns the original entry flagged as duplicate.
+     * Callers validate the room first — every claimed room id is remembered.
+     */
+    public Claim claim(String roomId, String sender, String clientMessageId) {
+        AtomicLong sequence = sequences.computeIfAbsent(roomId, id -> new AtomicLong());
+        if (clientMessageId == null || clientMessageId.isBlank() || clientMessageId.length() > MAX_CLIENT_ID_LENGTH) {
+            return new Claim(sequence.incrementAndGet(), null, false);
+        }
+
+        long now = System.currentTimeMillis();
+        // Touch under the map's entry lock, so the sweep can't drop a window being claimed into
+        RoomWindow window = windows.compute(roomId, (id, w) -> {
+            if (w == null) w = new RoomWindow();
+            w.lastClaimAt = now;
+            return w;
+        });
+        String key = sender + '\u0000' + clientMessageId;
+        Stripe stripe = window.stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        synchronized (stripe) {
+            evict(stripe, now);
+            Entry existing = stripe.entries.get(key);
+            if (existing != null) {
+                return new Claim(existing.sequence, existing, true);
+            }
+            Entry entry = new Entry(sequence.incrementAndGet(), now);
+            stripe.entries.put(key, entry);
+            return new Claim(entry.sequence, entry, false);
+        }
+    }
+
+    /** Forget a claim whose message failed to persist, so the client's retry goes through */
+    public void release(String roomId, String sender, String clientMessageId) {
+        RoomWindow window = windows.get(roomId);
+        if (window == null || clientMessageId == null) return;
+        String key = sender + '\u0000' + clientMessageId;
+        Stripe stripe = window.stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        synchronized (stripe) {
+            stripe.entries.remove(key);
+        }
+    }
+
+    /** Drop windows of rooms that saw no claim for a whole window — all their entries have expired */
+    @Scheduled(fixedDelayString = "${chat.dedup.window-ms:120000}")
+    public void sweepIdleWindows() {
+        long now = System.currentTimeMillis();
+        for (String roomId : windows.keySet()) {
+            windows.computeIfPresent(roomId, (id, w) -> now - w.lastClaimAt >= windowMs ? null : w);
+        }
+    }
+
+    private void evict(Stripe stripe, long now) {
+        int capacity = Math.max(1, maxPerRoom / STRIPES);
+        Iterator<Entry> it = stripe.entries.values().iterator();
+        while (it.hasNext()) {
+            Entry oldest = it.next();
+            if (now - oldest.claimedAt < windowMs && stripe.entries.size() < capacity) break;
+            it.remove();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Claim {
+        private final long sequence;
+        private final Entry entry;      // null when the send carried no client message id
+        private final boolean duplicate;
+    }
+
+    public static final class Entry {
+        private final long sequence;
+        private final long claimedAt;
+        // completes with the persisted message id; duplicates ack off the same future
+        @Getter private final CompletableFuture<Long> messageId = new CompletableFuture<>();
+
+        Entry(long sequence, long claimedAt) {
+            this.sequence = sequence;
+            this.claimedAt = claimedAt;
+        }
+    }
+
+    private static final class RoomWindow {
+        final Stripe[] stripes = new Stripe[STRIPES];
+        volatile long lastClaimAt;
+
+        RoomWindow() {
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+        }
+    }
+
+    private static final class Stripe {
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    }
+}
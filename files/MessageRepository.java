@@ -18,11 +18,26 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findLastMessagesByRoomId(@Param("roomId") String roomId,
                                            org.springframework.data.domain.Pageable pageable);
 
+    /**
+     * Fetch the newest N messages for a room, newest first.
+     */
+    @Query("SELECT m FROM Message m WHERE m.roomId = :roomId ORDER BY m.id DESC")
+    List<Message> findLatestByRoomId(@Param("roomId") String roomId,
+                                     org.springframework.data.domain.Pageable pageable);
+
     /**
      * Count messages in a room.
      */
     long countByRoomId(String roomId);
 
+    /**
+     * Per-room count of messages of the given type and highest message id of any type,
+     * used to seed in-memory counters. Each row is {roomId, count, maxId}.
+     */
+    @Query("SELECT m.roomId, SUM(CASE WHEN m.type = :type THEN 1 ELSE 0 END), MAX(m.id) " +
+           "FROM Message m GROUP BY m.roomId")
+    List<Object[]> countByTypeAndMaxIdByRoom(@Param("type") Message.MessageType type);
+
     /**
      * Delete all messages in a room.
      */
@@ -3,16 +3,30 @@ package com.chatapp.service;
 import com.chatapp.model.ChatDTOs;
 import com.chatapp.model.Message;
 import com.chatapp.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,8 +35,24 @@ import java.util.stream.Collectors;
 public class MessageService {
 
     private static final int HISTORY_LIMIT = 50;
+    private static final int EXPORT_FLUSH_EVERY = 500;
+    private static final int EXPORT_FETCH_SIZE = 500;
 
     private final MessageRepository messageRepository;
+    private final MessageCounterService messageCounterService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // Each running export holds a JDBC connection for its whole duration
+    @Value("${chat.export.max-concurrent:2}")
+    private int maxConcurrentExports;
+
+    private Semaphore exportPermits;
+
+    @PostConstruct
+    void initExportPermits() {
+        exportPermits = new Semaphore(maxConcurrentExports);
+    }
 
     /**
      * Persist a message asynchronously so the WebSocket handler returns immediately.
@@ -39,6 +69,13 @@ public class MessageService {
                 .timestamp(LocalDateTime.now())
                 .build();
         Message saved = messageRepository.save(message);
+        // Count only once committed, so versioned readers never see a counter ahead of the DB
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                messageCounterService.onPersisted(saved);
+            }
+        });
         log.debug("Persisted message id={} in room={}", saved.getId(), roomId);
         return CompletableFuture.completedFuture(saved);
     }
@@ -55,6 +92,65 @@ public class MessageService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Stream a room's history to {@code out} as NDJSON, one message per line.
+     * Rows come off a forward-only cursor and are detached as soon as they're written,
+     * so heap use stays flat regardless of room size. Returns the number of messages written.
+     */
+    @Transactional(readOnly = true)
+    public long exportMessages(String roomId, LocalDateTime from, LocalDateTime to,
+                               OutputStream out) throws IOException {
+        long written = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);   // lines are separated by the '\n' below, not Jackson's space
+        try (Stream<Message> messages = streamRange(roomId, from, to)) {
+            for (Iterator<Message> it = messages.iterator(); it.hasNext(); ) {
+                Message message = it.next();
+                generator.writeObject(toPayload(message));
+                generator.writeRaw('\n');
+                entityManager.detach(message);
+                if (++written % EXPORT_FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        generator.close();
+        log.info("Exported {} messages from room={}", written, roomId);
+        return written;
+    }
+
+    /**
+     * Forward-only cursor over a room's messages in id order, limited to [from, to).
+     * Bounds are only added to the query when given, so the database sees a plain range
+     * predicate rather than untyped {@code :p IS NULL} checks; (roomId, id) and
+     * (roomId, timestamp) are indexed on {@link Message}.
+     */
+    private Stream<Message> streamRange(String roomId, LocalDateTime from, LocalDateTime to) {
+        StringBuilder jpql = new StringBuilder("SELECT m FROM Message m WHERE m.roomId = :roomId");
+        if (from != null) jpql.append(" AND m.timestamp >= :from");
+        if (to != null) jpql.append(" AND m.timestamp < :to");
+        jpql.append(" ORDER BY m.id ASC");
+
+        TypedQuery<Message> query = entityManager.createQuery(jpql.toString(), Message.class)
+                .setParameter("roomId", roomId)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (from != null) query.setParameter("from", from);
+        if (to != null) query.setParameter("to", to);
+        return query.getResultStream();
+    }
+
+    /** Reserve an export slot; false when chat.export.max-concurrent exports are already running */
+    public boolean tryStartExport() {
+        return exportPermits.tryAcquire();
+    }
+
+    /** Release a slot taken by {@link #tryStartExport()} */
+    public void finishExport() {
+        exportPermits.release();
+    }
+
     public ChatDTOs.MessagePayload toPayload(Message message) {
         return ChatDTOs.MessagePayload.builder()
                 .id(message.getId())
@@ -66,6 +162,10 @@ public class MessageService {
                 .build();
     }
 
+    /**
+     * All messages in the room, JOIN/LEAVE/SYSTEM included — a COUNT(*) query.
+     * The in-memory counters count CHAT messages only, so they can't stand in for this.
+     */
     public long getMessageCount(String roomId) {
         return messageRepository.countByRoomId(roomId);
     }
@@ -6,11 +6,17 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * Thread-safe in-memory store of online user sessions.
  * Key: WebSocket session ID → Value: UserSession
+ *
+ * Room membership is indexed incrementally (roomId → username → session count)
+ * so per-room counts and user lists don't scan every session. A sorted username set
+ * per room is kept alongside it, so lists and pages come out in order without sorting.
  */
 @Slf4j
 @Service
@@ -19,19 +25,34 @@ public class OnlineUserService {
     // sessionId → UserSession
     private final Map<String, UserSession> sessions = new ConcurrentHashMap<>();
 
+    // roomId → (username → number of sessions of that user in the room)
+    private final Map<String, Map<String, Integer>> roomMembers = new ConcurrentHashMap<>();
+
+    // roomId → usernames in the room, sorted; updated under the roomMembers entry lock
+    private final Map<String, NavigableSet<String>> sortedMembers = new ConcurrentHashMap<>();
+
+    // roomId → version bumped whenever the room's user list changes
+    private final Map<String, AtomicLong> presenceVersions = new ConcurrentHashMap<>();
+    private final AtomicLong globalPresenceVersion = new AtomicLong();
+
     public void addUser(String sessionId, String username, String roomId) {
-        sessions.put(sessionId, UserSession.builder()
+        UserSession previous = sessions.put(sessionId, UserSession.builder()
                 .sessionId(sessionId)
                 .username(username)
                 .roomId(roomId)
                 .connectedAt(System.currentTimeMillis())
                 .build());
+        if (previous != null) {
+            adjustMembership(previous.getRoomId(), previous.getUsername(), -1);
+        }
+        adjustMembership(roomId, username, 1);
         log.debug("User added: {} in room {} (session={})", username, roomId, sessionId);
     }
 
     public void removeUser(String sessionId) {
         UserSession removed = sessions.remove(sessionId);
         if (removed != null) {
+            adjustMembership(removed.getRoomId(), removed.getUsername(), -1);
             log.debug("User removed: {} (session={})", removed.getUsername(), sessionId);
         }
     }
@@ -39,27 +60,32 @@ public class OnlineUserService {
     public void changeRoom(String sessionId, String newRoomId) {
         UserSession session = sessions.get(sessionId);
         if (session != null) {
+            adjustMembership(session.getRoomId(), session.getUsername(), -1);
             session.setRoomId(newRoomId);
+            adjustMembership(newRoomId, session.getUsername(), 1);
         }
     }
 
-    /** Returns usernames of all users in a specific room */
+    /** Returns usernames of all users in a specific room, sorted */
     public List<String> getUsersInRoom(String roomId) {
-        return sessions.values().stream()
-                .filter(s -> roomId.equals(s.getRoomId()))
-                .map(UserSession::getUsername)
-                .distinct()
-                .sorted()
+        NavigableSet<String> members = sortedMembers.get(roomId);
+        return members == null ? List.of() : new ArrayList<>(members);
+    }
+
+    /** Returns up to limit sorted usernames of a room, skipping the first offset */
+    public List<String> getUsersInRoom(String roomId, long offset, int limit) {
+        NavigableSet<String> members = sortedMembers.get(roomId);
+        if (members == null) return List.of();
+        return members.stream()
+                .skip(offset)
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
-    /** Returns count of online users in a room */
+    /** Returns count of online users in a room — O(1) */
     public int getOnlineCountInRoom(String roomId) {
-        return (int) sessions.values().stream()
-                .filter(s -> roomId.equals(s.getRoomId()))
-                .map(UserSession::getUsername)
-                .distinct()
-                .count();
+        Map<String, Integer> members = roomMembers.get(roomId);
+        return members == null ? 0 : members.size();
     }
 
     /** Returns total unique online users across all rooms */
@@ -70,12 +96,58 @@ public class OnlineUserService {
                 .count();
     }
 
+    /** Version of a room's user list; changes only when someone enters or leaves it */
+    public long getPresenceVersion(String roomId) {
+        AtomicLong version = presenceVersions.get(roomId);
+        return version == null ? 0 : version.get();
+    }
+
+    /** Version bumped on any room's user list change */
+    public long getGlobalPresenceVersion() {
+        return globalPresenceVersion.get();
+    }
+
+    /** Live view of all connected sessions */
+    public Collection<UserSession> getAllSessions() {
+        return sessions.values();
+    }
+
     public Optional<UserSession> getSession(String sessionId) {
         return Optional.ofNullable(sessions.get(sessionId));
     }
 
     public boolean isUsernameInRoom(String username, String roomId) {
-        return sessions.values().stream()
-                .anyMatch(s -> username.equals(s.getUsername()) && roomId.equals(s.getRoomId()));
+        Map<String, Integer> members = roomMembers.get(roomId);
+        return members != null && members.containsKey(username);
+    }
+
+    private void adjustMembership(String roomId, String username, int delta) {
+        if (roomId == null || username == null) return;
+        boolean[] membershipChanged = new boolean[1];
+        roomMembers.compute(roomId, (id, members) -> {
+            if (members == null) members = new ConcurrentHashMap<>();
+            members.compute(username, (u, count) -> {
+                int updated = (count == null ? 0 : count) + delta;
+                membershipChanged[0] = (count == null) != (updated <= 0);
+                return updated > 0 ? updated : null;
+            });
+            if (membershipChanged[0]) {
+                if (members.containsKey(username)) {
+                    sortedMembers.computeIfAbsent(id, r -> new ConcurrentSkipListSet<>()).add(username);
+                } else {
+                    NavigableSet<String> sorted = sortedMembers.get(id);
+                    if (sorted != null) sorted.remove(username);
+                }
+            }
+            if (members.isEmpty()) {
+                sortedMembers.remove(id);
+                return null;
+            }
+            return members;
+        });
+        if (membershipChanged[0]) {
+            presenceVersions.computeIfAbsent(roomId, id -> new AtomicLong()).incrementAndGet();
+            globalPresenceVersion.incrementAndGet();
+        }
     }
 }
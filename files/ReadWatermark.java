@@ -0,0 +1,42 @@
+package com.chatapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Last position a user has read up to in a room.
+ * {@code seenCount} is the room's message counter at that point, so unread = current count − seenCount.
+ */
+@Entity
+@Table(name = "read_watermarks",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"username", "roomId"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReadWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private String roomId;
+
+    private long lastMessageId;
+
+    private long seenCount;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,25 @@
+package com.chatapp.repository;
+
+import com.chatapp.model.ReadWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReadWatermarkRepository extends JpaRepository<ReadWatermark, Long> {
+
+    List<ReadWatermark> findByUsername(String username);
+
+    /**
+     * Move an existing watermark in place — a single UPDATE, without the SELECT a merge would need.
+     */
+    @Modifying
+    @Query("UPDATE ReadWatermark w SET w.lastMessageId = :lastMessageId, w.seenCount = :seenCount WHERE w.id = :id")
+    int updatePosition(@Param("id") Long id,
+                       @Param("lastMessageId") long lastMessageId,
+                       @Param("seenCount") long seenCount);
+}
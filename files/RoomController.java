@@ -1,47 +1,122 @@
 package com.chatapp.controller;
 
 import com.chatapp.model.ChatDTOs;
+import com.chatapp.service.AdmissionControlService;
+import com.chatapp.service.MessageCounterService;
 import com.chatapp.service.MessageService;
 import com.chatapp.service.OnlineUserService;
+import com.chatapp.service.RoomDirectoryService;
+import com.chatapp.service.RoomPresenceService;
 import com.chatapp.service.RoomService;
+import com.chatapp.service.UnreadService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class RoomController {
 
+    private static final int EXPORT_RETRY_AFTER_SECONDS = 30;
+
     private final RoomService roomService;
     private final MessageService messageService;
     private final OnlineUserService onlineUserService;
+    private final UnreadService unreadService;
+    private final RoomDirectoryService roomDirectoryService;
+    private final MessageCounterService messageCounterService;
+    private final RoomPresenceService roomPresenceService;
+    private final AdmissionControlService admissionControlService;
+    private final ConditionalResponseCache responseCache;
+
+    // Reads below are versioned: catalog version, last message id, presence version.
+    // Unchanged resources are answered with 304 or cached bytes without touching the services.
 
     /** Get all rooms with live online counts */
     @GetMapping("/rooms")
-    public ResponseEntity<List<ChatDTOs.RoomPayload>> getRooms() {
-        return ResponseEntity.ok(roomService.getAllRooms());
+    public ResponseEntity<?> getRooms(HttpServletRequest request) {
+        String version = roomService.getCatalogVersion() + "." + onlineUserService.getGlobalPresenceVersion();
+        return responseCache.respond(request, "rooms", version, roomService::getAllRooms);
     }
 
     /** Get message history for a room */
     @GetMapping("/rooms/{roomId}/messages")
-    public ResponseEntity<?> getRoomMessages(@PathVariable String roomId) {
-        if (!roomService.roomExists(roomId)) {
+    public ResponseEntity<?> getRoomMessages(@PathVariable String roomId, HttpServletRequest request) {
+        if (!roomDirectoryService.hasRoom(roomId)) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(messageService.getRecentMessages(roomId));
+        String version = Long.toString(messageCounterService.getLastMessageId(roomId));
+        return responseCache.respond(request, "messages:" + roomId, version,
+                () -> messageService.getRecentMessages(roomId));
+    }
+
+    /**
+     * Export a room's full history as NDJSON (optionally gzipped), streamed straight
+     * to the response. from/to are ISO date-times; the range is [from, to).
+     * Concurrent exports are capped; past the cap the answer is 503 + Retry-After.
+     */
+    @GetMapping("/rooms/{roomId}/export")
+    public ResponseEntity<StreamingResponseBody> exportRoomMessages(
+            @PathVariable String roomId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        if (!roomDirectoryService.hasRoom(roomId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!messageService.tryStartExport()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Integer.toString(EXPORT_RETRY_AFTER_SECONDS))
+                    .build();
+        }
+        String filename = roomId + "-export.ndjson" + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            try {
+                OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+                messageService.exportMessages(roomId, from, to, target);
+                if (gzip) ((GZIPOutputStream) target).finish();
+            } finally {
+                messageService.finishExport();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                                  : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
     }
 
-    /** Get users in a room */
+    /** Get users in a room — paged when page is given or the room is in large-room mode */
     @GetMapping("/rooms/{roomId}/users")
-    public ResponseEntity<?> getRoomUsers(@PathVariable String roomId) {
-        if (!roomService.roomExists(roomId)) {
+    public ResponseEntity<?> getRoomUsers(@PathVariable String roomId,
+                                          @RequestParam(required = false) Integer page,
+                                          @RequestParam(defaultValue = "100") int size,
+                                          HttpServletRequest request) {
+        if (!roomDirectoryService.hasRoom(roomId)) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(Map.of(
+        String version = Long.toString(onlineUserService.getPresenceVersion(roomId));
+        if (page != null || roomPresenceService.isLargeRoom(roomId)) {
+            int pageIndex = Math.max(0, page == null ? 0 : page);
+            int pageSize = roomPresenceService.clampPageSize(size);
+            return responseCache.respondUncached(request, "users:" + roomId + ":" + pageIndex + ":" + pageSize,
+                    version, () -> roomPresenceService.getPage(roomId, pageIndex, pageSize));
+        }
+        return responseCache.respond(request, "users:" + roomId, version, () -> Map.of(
                 "roomId", roomId,
                 "users", onlineUserService.getUsersInRoom(roomId),
                 "count", onlineUserService.getOnlineCountInRoom(roomId)
@@ -50,13 +125,43 @@ public class RoomController {
 
     /** Get stats */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStats() {
-        return ResponseEntity.ok(Map.of(
+    public ResponseEntity<?> getStats(HttpServletRequest request) {
+        String version = roomService.getCatalogVersion() + "." + onlineUserService.getGlobalPresenceVersion();
+        return responseCache.respond(request, "stats", version, () -> Map.of(
                 "totalOnline", onlineUserService.getTotalOnlineCount(),
                 "rooms", roomService.getAllRooms().size()
         ));
     }
 
+    /** Get unread counts per visited room for a user */
+    @GetMapping("/unread")
+    public ResponseEntity<?> getUnread(@RequestParam String username) {
+        if (username.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Username is required"));
+        }
+        return ResponseEntity.ok(ChatDTOs.UnreadPayload.builder()
+                .username(username)
+                .unread(unreadService.getUnreadCounts(username))
+                .build());
+    }
+
+    /** Whether this node accepts new connections; 503 + Retry-After when it doesn't */
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmission() {
+        int retryAfter = admissionControlService.retryAfterSeconds();
+        var body = Map.<String, Object>of(
+                "accepting", retryAfter == 0,
+                "retryAfterSeconds", retryAfter,
+                "connections", admissionControlService.getConnectionCount()
+        );
+        if (retryAfter == 0) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(retryAfter))
+                .body(body);
+    }
+
     /** Create a new room */
     @PostMapping("/rooms")
     public ResponseEntity<?> createRoom(@RequestBody Map<String, String> body) {
@@ -66,6 +171,7 @@ public class RoomController {
             return ResponseEntity.badRequest().body(Map.of("error", "Name is required"));
         }
         var room = roomService.createRoom(name, name, description);
+        roomDirectoryService.roomCreated(room);
         return ResponseEntity.ok(room);
     }
 }
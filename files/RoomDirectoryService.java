@@ -0,0 +1,118 @@
+package com.chatapp.service;
+
+import com.chatapp.model.ChatDTOs;
+import com.chatapp.model.ChatRoom;
+import com.chatapp.repository.ChatRoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Push-based room directory on /topic/rooms.
+ *
+ * Subscribers get one SNAPSHOT (via /app/rooms) and then DELTAs carrying only the
+ * rooms that changed. Online-count changes are coalesced per publish interval, so a
+ * busy room produces at most one directory update per tick no matter how many
+ * joins/leaves happen in between.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomDirectoryService {
+
+    private static final Comparator<ChatRoom> ROOM_ORDER =
+            Comparator.comparing(ChatRoom::getCreatedAt).thenComparing(ChatRoom::getId);
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final OnlineUserService onlineUserService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // roomId → ChatRoom, loaded once so snapshots never hit the DB
+    private final Map<String, ChatRoom> catalog = new ConcurrentHashMap<>();
+
+    // roomId → online count as last published
+    private final Map<String, Integer> publishedCounts = new ConcurrentHashMap<>();
+
+    // rooms created since the last publish
+    private final Set<String> createdRooms = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong version = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCatalog() {
+        chatRoomRepository.findAll().forEach(room -> {
+            catalog.put(room.getId(), room);
+            publishedCounts.put(room.getId(), onlineUserService.getOnlineCountInRoom(room.getId()));
+        });
+        log.info("Room directory loaded with {} rooms", catalog.size());
+    }
+
+    /** Full directory for a new subscriber; deltas with a higher version apply on top */
+    public ChatDTOs.RoomDirectoryPayload snapshot() {
+        long current = version.get();
+        List<ChatDTOs.RoomPayload> rooms = catalog.values().stream()
+                .sorted(ROOM_ORDER)
+                .map(this::toPayload)
+                .collect(Collectors.toList());
+        return ChatDTOs.RoomDirectoryPayload.builder()
+                .version(current)
+                .kind(ChatDTOs.RoomDirectoryPayload.Kind.SNAPSHOT)
+                .rooms(rooms)
+                .build();
+    }
+
+    /** In-memory existence check, no DB round trip */
+    public boolean hasRoom(String roomId) {
+        return roomId != null && catalog.containsKey(roomId);
+    }
+
+    /** Register a newly created room; it goes out with the next delta */
+    public void roomCreated(ChatRoom room) {
+        catalog.put(room.getId(), room);
+        createdRooms.add(room.getId());
+    }
+
+    /** Publish one coalesced delta with every room whose entry changed since the last tick */
+    @Scheduled(fixedDelayString = "${chat.directory.publish-interval-ms:1000}")
+    public void publishDeltas() {
+        List<ChatDTOs.RoomPayload> changed = new ArrayList<>();
+        catalog.values().stream().sorted(ROOM_ORDER).forEach(room -> {
+            boolean created = createdRooms.remove(room.getId());
+            int count = onlineUserService.getOnlineCountInRoom(room.getId());
+            Integer previous = publishedCounts.put(room.getId(), count);
+            if (created || previous == null || previous != count) {
+                changed.add(toPayload(room, count));
+            }
+        });
+        if (changed.isEmpty()) return;
+
+        messagingTemplate.convertAndSend("/topic/rooms", ChatDTOs.RoomDirectoryPayload.builder()
+                .version(version.incrementAndGet())
+                .kind(ChatDTOs.RoomDirectoryPayload.Kind.DELTA)
+                .rooms(changed)
+                .build());
+        log.debug("Published directory delta with {} rooms", changed.size());
+    }
+
+    private ChatDTOs.RoomPayload toPayload(ChatRoom room) {
+        return toPayload(room, onlineUserService.getOnlineCountInRoom(room.getId()));
+    }
+
+    private ChatDTOs.RoomPayload toPayload(ChatRoom room, int onlineCount) {
+        return ChatDTOs.RoomPayload.builder()
+                .id(room.getId())
+                .name(room.getName())
+                .description(room.getDescription())
+                .onlineCount(onlineCount)
+                .build();
+    }
+}
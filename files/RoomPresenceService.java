@@ -0,0 +1,136 @@
+package com.chatapp.service;
+
+import com.chatapp.model.ChatDTOs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broadcasts room presence on /topic/room/{roomId}/users.
+ *
+ * Small rooms get the full sorted user list on every change. Once a room reaches
+ * {@code chat.presence.large-room-threshold} members it switches to large-room mode:
+ * broadcasts carry only the count and a short "recently joined" window, and the full
+ * list is served in pages on demand. The room switches back only after shrinking to
+ * {@code chat.presence.small-room-threshold}, so it doesn't flap around the boundary.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomPresenceService {
+
+    private final OnlineUserService onlineUserService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${chat.presence.large-room-threshold:200}")
+    private int largeRoomThreshold;
+
+    @Value("${chat.presence.small-room-threshold:150}")
+    private int smallRoomThreshold;
+
+    @Value("${chat.presence.recent-window:20}")
+    private int recentWindow;
+
+    @Value("${chat.presence.max-page-size:500}")
+    private int maxPageSize;
+
+    // rooms currently in large-room mode
+    private final Set<String> largeRooms = ConcurrentHashMap.newKeySet();
+
+    // roomId → most recently joined usernames, newest first
+    private final Map<String, Deque<String>> recentlyJoined = new ConcurrentHashMap<>();
+
+    public void userJoined(String roomId, String username) {
+        Deque<String> recent = recentlyJoined.computeIfAbsent(roomId, id -> new ArrayDeque<>());
+        synchronized (recent) {
+            recent.remove(username);
+            recent.addFirst(username);
+            while (recent.size() > recentWindow) recent.removeLast();
+        }
+        broadcast(roomId);
+    }
+
+    public void userLeft(String roomId, String username) {
+        Deque<String> recent = recentlyJoined.get(roomId);
+        if (recent != null && !onlineUserService.isUsernameInRoom(username, roomId)) {
+            synchronized (recent) {
+                recent.remove(username);
+            }
+        }
+        broadcast(roomId);
+    }
+
+    /** Send the room's presence to all subscribers — full list or counts-only depending on mode */
+    public void broadcast(String roomId) {
+        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/users", currentPresence(roomId));
+    }
+
+    public ChatDTOs.UsersPayload currentPresence(String roomId) {
+        int count = onlineUserService.getOnlineCountInRoom(roomId);
+        if (!updateMode(roomId, count)) {
+            return ChatDTOs.UsersPayload.builder()
+                    .roomId(roomId)
+                    .users(onlineUserService.getUsersInRoom(roomId))
+                    .count(count)
+                    .build();
+        }
+        return ChatDTOs.UsersPayload.builder()
+                .roomId(roomId)
+                .count(count)
+                .large(true)
+                .recentlyJoined(recentSnapshot(roomId))
+                .build();
+    }
+
+    public boolean isLargeRoom(String roomId) {
+        return largeRooms.contains(roomId);
+    }
+
+    /** Requested page size limited to [1, chat.presence.max-page-size] */
+    public int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    /** One page of the room's sorted member list */
+    public ChatDTOs.UsersPagePayload getPage(String roomId, int page, int size) {
+        int pageSize = clampPageSize(size);
+        int pageIndex = Math.max(0, page);
+        return ChatDTOs.UsersPagePayload.builder()
+                .roomId(roomId)
+                .page(pageIndex)
+                .size(pageSize)
+                .total(onlineUserService.getOnlineCountInRoom(roomId))
+                .users(onlineUserService.getUsersInRoom(roomId, (long) pageIndex * pageSize, pageSize))
+                .build();
+    }
+
+    /** Apply hysteresis and return whether the room is (now) in large-room mode */
+    private boolean updateMode(String roomId, int count) {
+        if (count >= largeRoomThreshold) {
+            if (largeRooms.add(roomId)) {
+                log.info("Room '{}' switched to large-room mode ({} users)", roomId, count);
+            }
+            return true;
+        }
+        if (count <= smallRoomThreshold) {
+            if (largeRooms.remove(roomId)) {
+                log.info("Room '{}' switched back to full presence ({} users)", roomId, count);
+            }
+            return false;
+        }
+        return largeRooms.contains(roomId);
+    }
+
+    private List<String> recentSnapshot(String roomId) {
+        Deque<String> recent = recentlyJoined.get(roomId);
+        if (recent == null) return List.of();
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+}
@@ -6,20 +6,26 @@ import com.chatapp.repository.ChatRoomRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@DependsOn("warmStartSnapshotService") // restore snapshot before seeding
 public class RoomService {
 
     private final ChatRoomRepository chatRoomRepository;
     private final OnlineUserService onlineUserService;
 
+    // Bumped whenever a room is created; used for conditional GETs of the catalog
+    private final AtomicLong catalogVersion = new AtomicLong();
+
     /** Seed default rooms on startup */
     @PostConstruct
     public void initDefaultRooms() {
@@ -60,7 +66,13 @@ public class RoomService {
                 .name(name)
                 .description(description)
                 .build();
-        return chatRoomRepository.save(room);
+        ChatRoom saved = chatRoomRepository.save(room);
+        catalogVersion.incrementAndGet();
+        return saved;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
     }
 
     public boolean roomExists(String roomId) {
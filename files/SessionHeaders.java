@@ -0,0 +1,23 @@
+package com.chatapp.config;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+
+/**
+ * Headers for {@code convertAndSendToUser(sessionId, ...)} — the session ID is used as the
+ * "user", so the message must carry it as its session header to reach that one session.
+ */
+public final class SessionHeaders {
+
+    private SessionHeaders() {
+    }
+
+    /** Build headers that correctly target a session ID when using convertAndSendToUser */
+    public static MessageHeaders forSession(String sessionId) {
+        var headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setLeaveMutable(true);
+        return headerAccessor.getMessageHeaders();
+    }
+}
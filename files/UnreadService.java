@@ -0,0 +1,193 @@
+package com.chatapp.service;
+
+import com.chatapp.config.SessionHeaders;
+import com.chatapp.model.ChatDTOs;
+import com.chatapp.model.ReadWatermark;
+import com.chatapp.model.UserSession;
+import com.chatapp.repository.ReadWatermarkRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user read watermarks and unread counts.
+ *
+ * Unread = room message counter − counter value when the user last read the room,
+ * so every lookup is a map read — no counting queries. Watermarks live in memory;
+ * only the (user, room) pairs that actually moved since the last flush are written
+ * back, existing rows with a plain UPDATE and new ones with an INSERT.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnreadService {
+
+    private final ReadWatermarkRepository watermarkRepository;
+    private final MessageCounterService messageCounterService;
+    private final OnlineUserService onlineUserService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // username → (roomId → watermark) for users with a live session, loaded lazily from the DB;
+    // evicted after flush once the user has no session left
+    private final Map<String, Map<String, ReadWatermark>> watermarks = new ConcurrentHashMap<>();
+
+    // username → rooms whose watermark moved since the last flush; the sets are only
+    // mutated inside compute() and read after remove(), so a plain HashSet is enough
+    private final Map<String, Set<String>> dirtyRooms = new ConcurrentHashMap<>();
+
+    // roomId → message count at the last unread push
+    private final Map<String, Long> lastPushedCounts = new ConcurrentHashMap<>();
+
+    /** Mark everything currently in the room as read for this user */
+    public void markRead(String username, String roomId) {
+        if (username == null || roomId == null) return;
+        ReadWatermark wm = userWatermarks(username).computeIfAbsent(roomId,
+                id -> ReadWatermark.builder().username(username).roomId(id).build());
+        long lastMessageId = messageCounterService.getLastMessageId(roomId);
+        long seenCount = messageCounterService.getCount(roomId);
+        synchronized (wm) {
+            // Already there (and persisted) — nothing to write
+            if (wm.getId() != null && wm.getLastMessageId() == lastMessageId && wm.getSeenCount() == seenCount) {
+                return;
+            }
+            wm.setLastMessageId(lastMessageId);
+            wm.setSeenCount(seenCount);
+        }
+        dirtyRooms.compute(username, (name, rooms) -> {
+            if (rooms == null) rooms = new HashSet<>();
+            rooms.add(roomId);
+            return rooms;
+        });
+    }
+
+    /** Unread counts for every room the user has visited; never caches watermarks for the lookup */
+    public Map<String, Long> getUnreadCounts(String username) {
+        Map<String, Long> unread = new TreeMap<>();
+        Map<String, ReadWatermark> cached = watermarks.get(username);
+        Collection<ReadWatermark> marks = cached != null
+                ? cached.values()
+                : watermarkRepository.findByUsername(username);
+        for (ReadWatermark wm : marks) {
+            unread.put(wm.getRoomId(), Math.max(0, messageCounterService.getCount(wm.getRoomId()) - wm.getSeenCount()));
+        }
+        return unread;
+    }
+
+    /** Send the user's unread counts to a single session via /user/queue/unread */
+    public void pushUnread(String sessionId, String username) {
+        messagingTemplate.convertAndSendToUser(sessionId, "/queue/unread",
+                ChatDTOs.UnreadPayload.builder().username(username).unread(getUnreadCounts(username)).build(),
+                SessionHeaders.forSession(sessionId));
+    }
+
+    /**
+     * Coalesced unread push: only sessions whose user tracks a room that received
+     * messages since the last tick get an update. The room a session is currently
+     * viewing is marked read instead, since the user saw those messages live.
+     */
+    @Scheduled(fixedDelayString = "${chat.unread.push-interval-ms:2000}")
+    public void pushChangedRooms() {
+        Set<String> changed = new HashSet<>();
+        for (String roomId : messageCounterService.getRoomIds()) {
+            long count = messageCounterService.getCount(roomId);
+            Long previous = lastPushedCounts.put(roomId, count);
+            if (previous == null || previous != count) changed.add(roomId);
+        }
+        if (changed.isEmpty()) return;
+
+        for (UserSession session : onlineUserService.getAllSessions()) {
+            if (changed.contains(session.getRoomId())) {
+                markRead(session.getUsername(), session.getRoomId());
+            }
+            Map<String, ReadWatermark> tracked = watermarks.get(session.getUsername());
+            if (tracked == null) continue;
+            boolean affected = tracked.keySet().stream()
+                    .anyMatch(roomId -> changed.contains(roomId) && !roomId.equals(session.getRoomId()));
+            if (affected) {
+                pushUnread(session.getSessionId(), session.getUsername());
+            }
+        }
+    }
+
+    /** Write back the watermarks that moved, then drop clean entries of users who went offline */
+    @Scheduled(fixedDelayString = "${chat.unread.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        writeDirty();
+        evictOffline();
+    }
+
+    private void writeDirty() {
+        if (dirtyRooms.isEmpty()) return;
+        List<ReadWatermark> inserts = new ArrayList<>();
+        List<ReadWatermark> insertCopies = new ArrayList<>();
+        List<ReadWatermark> updates = new ArrayList<>();
+        for (String username : dirtyRooms.keySet()) {
+            Set<String> rooms = dirtyRooms.remove(username);
+            Map<String, ReadWatermark> userMarks = watermarks.get(username);
+            if (rooms == null || userMarks == null) continue;
+            for (String roomId : rooms) {
+                ReadWatermark wm = userMarks.get(roomId);
+                if (wm == null) continue;
+                synchronized (wm) {
+                    ReadWatermark copy = ReadWatermark.builder()
+                            .id(wm.getId())
+                            .username(wm.getUsername())
+                            .roomId(wm.getRoomId())
+                            .lastMessageId(wm.getLastMessageId())
+                            .seenCount(wm.getSeenCount())
+                            .build();
+                    if (copy.getId() == null) {
+                        inserts.add(wm);
+                        insertCopies.add(copy);
+                    } else {
+                        updates.add(copy);
+                    }
+                }
+            }
+        }
+
+        List<ReadWatermark> saved = transactionTemplate.execute(status -> {
+            for (ReadWatermark wm : updates) {
+                watermarkRepository.updatePosition(wm.getId(), wm.getLastMessageId(), wm.getSeenCount());
+            }
+            return watermarkRepository.saveAll(insertCopies);
+        });
+        // Carry generated ids back so the next flush updates instead of inserting
+        for (int i = 0; i < saved.size(); i++) {
+            ReadWatermark wm = inserts.get(i);
+            synchronized (wm) {
+                wm.setId(saved.get(i).getId());
+            }
+        }
+        log.debug("Flushed read watermarks: {} updated, {} inserted", updates.size(), saved.size());
+    }
+
+    private void evictOffline() {
+        Set<String> online = new HashSet<>();
+        for (UserSession session : onlineUserService.getAllSessions()) {
+            online.add(session.getUsername());
+        }
+        for (String username : watermarks.keySet()) {
+            if (online.contains(username)) continue;
+            // Keep anything marked since the flush above; it goes out next time
+            watermarks.computeIfPresent(username, (name, marks) -> dirtyRooms.containsKey(name) ? marks : null);
+        }
+    }
+
+    private Map<String, ReadWatermark> userWatermarks(String username) {
+        return watermarks.computeIfAbsent(username, name -> {
+            Map<String, ReadWatermark> loaded = new ConcurrentHashMap<>();
+            watermarkRepository.findByUsername(name).forEach(wm -> loaded.put(wm.getRoomId(), wm));
+            return loaded;
+        });
+    }
+}
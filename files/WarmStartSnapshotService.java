@@ -0,0 +1,256 @@
+package com.chatapp.service;
+
+import com.chatapp.model.ChatRoom;
+import com.chatapp.model.Message;
+import com.chatapp.repository.ChatRoomRepository;
+import com.chatapp.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Periodic snapshot of hot state — room catalog, recent history and message counters —
+ * to a compact local file, restored at boot so a restart starts warm.
+ *
+ * Restore runs in {@code @PostConstruct}, before the room/message seeders (which
+ * {@code @DependsOn} this bean) and before the web server accepts traffic. The file is
+ * memory-mapped and checked for magic, format version and CRC, fully decoded, and only
+ * then persisted in a single transaction; anything unexpected falls back to the normal
+ * cold start with nothing half-restored. Rooms and messages are only restored where the
+ * database has none, so a persistent database is never duplicated into.
+ *
+ * Layout: magic, version, writtenAt, roomCount,
+ *         { id, name, description, createdAt, messageCount, historySize, { sender, content, type, timestamp } },
+ *         CRC32 of everything before it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WarmStartSnapshotService {
+
+    private static final int MAGIC = 0x4357534E;   // "CWSN"
+    private static final int FORMAT_VERSION = 1;
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final MessageRepository messageRepository;
+    private final MessageCounterService messageCounterService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.snapshot.path:data/chat-snapshot.bin}")
+    private Path path;
+
+    @Value("${chat.snapshot.history-per-room:50}")
+    private int historyPerRoom;
+
+    // ── Restore ────────────────────────────────────────────────────────────────
+
+    @PostConstruct
+    public void restore() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            log.info("No warm-start snapshot at {}, cold start", path);
+            return;
+        }
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!isValid(buffer)) return;
+
+            // Decode everything first: a bad record then leaves the database untouched
+            buffer.position(8);
+            long writtenAt = buffer.getLong();
+            int roomCount = buffer.getInt();
+            List<RoomSnapshot> snapshots = new ArrayList<>(roomCount);
+            for (int r = 0; r < roomCount; r++) {
+                ChatRoom room = ChatRoom.builder()
+                        .id(readString(buffer))
+                        .name(readString(buffer))
+                        .description(readString(buffer))
+                        .createdAt(toDateTime(buffer.getLong()))
+                        .build();
+                long messageCount = buffer.getLong();
+                int historySize = buffer.getInt();
+                List<Message> history = new ArrayList<>(historySize);
+                for (int m = 0; m < historySize; m++) {
+                    history.add(Message.builder()
+                            .roomId(room.getId())
+                            .sender(readString(buffer))
+                            .content(readString(buffer))
+                            .type(Message.MessageType.valueOf(readString(buffer)))
+                            .timestamp(toDateTime(buffer.getLong()))
+                            .build());
+                }
+                snapshots.add(new RoomSnapshot(room, messageCount, history));
+            }
+
+            // Then persist in one transaction, so a failure here rolls back to a clean cold start
+            int[] restored = transactionTemplate.execute(status -> persist(snapshots));
+            snapshots.forEach(s -> messageCounterService.restoreCount(s.room().getId(), s.messageCount()));
+            log.info("Warm start from snapshot written {}: {} rooms, {} messages restored in {} ms",
+                    Instant.ofEpochMilli(writtenAt), restored[0], restored[1],
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable warm-start snapshot {}, cold start: {}", path, e.toString());
+        }
+    }
+
+    /** Returns {rooms restored, messages restored} */
+    private int[] persist(List<RoomSnapshot> snapshots) {
+        int restoredRooms = 0;
+        int restoredMessages = 0;
+        for (RoomSnapshot snapshot : snapshots) {
+            String roomId = snapshot.room().getId();
+            if (!chatRoomRepository.existsById(roomId)) {
+                chatRoomRepository.save(snapshot.room());
+                restoredRooms++;
+            }
+            if (messageRepository.countByRoomId(roomId) == 0) {
+                messageRepository.saveAll(snapshot.history());
+                restoredMessages += snapshot.history().size();
+            }
+        }
+        return new int[] {restoredRooms, restoredMessages};
+    }
+
+    private record RoomSnapshot(ChatRoom room, long messageCount, List<Message> history) {}
+
+    private boolean isValid(MappedByteBuffer buffer) {
+        if (buffer.limit() < 28 || buffer.getInt(0) != MAGIC) {
+            log.warn("Snapshot {} is not a chat snapshot, cold start", path);
+            return false;
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            log.warn("Snapshot {} has format version {} (expected {}), cold start", path, version, FORMAT_VERSION);
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, buffer.limit() - 8));
+        if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+            log.warn("Snapshot {} failed its checksum, cold start", path);
+            return false;
+        }
+        return true;
+    }
+
+    // ── Write ──────────────────────────────────────────────────────────────────
+
+    /** Write to a temp file and move it into place, so a crash mid-write never leaves a torn snapshot */
+    @Scheduled(initialDelayString = "${chat.snapshot.interval-ms:60000}",
+               fixedDelayString = "${chat.snapshot.interval-ms:60000}")
+    @PreDestroy
+    public void write() {
+        if (!enabled) return;
+        long started = System.nanoTime();
+        Path tmp = null;
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, "chat-snapshot", ".tmp");
+            int rooms;
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+                rooms = writeBody(out);
+                out.flush();
+                new DataOutputStream(file).writeLong(crc.getValue());
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote warm-start snapshot ({} rooms) in {} ms", rooms,
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write warm-start snapshot {}: {}", path, e.toString());
+            deleteQuietly(tmp);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // best effort — a stray temp file is harmless
+        }
+    }
+
+    private int writeBody(DataOutputStream out) throws IOException {
+        List<ChatRoom> rooms = chatRoomRepository.findAll();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(rooms.size());
+        for (ChatRoom room : rooms) {
+            writeString(out, room.getId());
+            writeString(out, room.getName());
+            writeString(out, room.getDescription());
+            out.writeLong(toEpochMillis(room.getCreatedAt()));
+            out.writeLong(messageCounterService.getCount(room.getId()));
+
+            List<Message> history = new ArrayList<>(messageRepository.findLatestByRoomId(
+                    room.getId(), PageRequest.of(0, historyPerRoom)));
+            Collections.reverse(history);   // oldest first, so restored ids keep their order
+            out.writeInt(history.size());
+            for (Message message : history) {
+                writeString(out, message.getSender());
+                writeString(out, message.getContent());
+                writeString(out, (message.getType() == null ? Message.MessageType.CHAT : message.getType()).name());
+                out.writeLong(toEpochMillis(message.getTimestamp()));
+            }
+        }
+        return rooms.size();
+    }
+
+    // ── Encoding helpers ───────────────────────────────────────────────────────
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
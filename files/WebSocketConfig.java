@@ -1,13 +1,27 @@
 package com.chatapp.config;
 
+import com.chatapp.service.AdmissionControlService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.*;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final AdmissionHandshakeInterceptor admissionHandshakeInterceptor;
+    private final AdmissionControlService admissionControlService;
+
+    @Value("${chat.ws.native.permessage-deflate:true}")
+    private boolean nativeDeflate;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable a simple in-memory message broker
@@ -25,9 +39,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        // STOMP endpoint — clients connect here
+        // Native STOMP endpoint — preferred by clients; no SockJS framing,
+        // permessage-deflate negotiated by the container unless disabled
+        registry.addEndpoint("/ws-native")
+                .setHandshakeHandler(new DefaultHandshakeHandler(new DeflateAwareUpgradeStrategy(nativeDeflate)))
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(admissionHandshakeInterceptor);
+
+        // STOMP endpoint over SockJS — fallback when native WebSocket is unavailable
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
+                .addInterceptors(admissionHandshakeInterceptor) // connection limits + load shedding
                 .withSockJS(); // SockJS fallback for non-WebSocket browsers
     }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Track live sessions so admission control can count and drain them
+        registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                admissionControlService.register(session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                admissionControlService.unregister(session);
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        });
+    }
 }
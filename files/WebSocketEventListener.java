@@ -2,7 +2,9 @@ package com.chatapp.config;
 
 import com.chatapp.model.UserSession;
 import com.chatapp.service.OnlineUserService;
+import com.chatapp.service.RoomPresenceService;
 import com.chatapp.service.RoomService;
+import com.chatapp.service.UnreadService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -22,6 +24,8 @@ public class WebSocketEventListener {
     private final OnlineUserService onlineUserService;
     private final SimpMessagingTemplate messagingTemplate;
     private final RoomService roomService;
+    private final UnreadService unreadService;
+    private final RoomPresenceService roomPresenceService;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
@@ -45,13 +49,11 @@ public class WebSocketEventListener {
         if (username != null) {
             log.debug("User disconnected: username={}, room={}", username, roomId);
             onlineUserService.removeUser(sessionId);
+            unreadService.markRead(username, roomId);
 
-            // Broadcast updated user list to the room they were in
+            // Broadcast updated presence to the room they were in
             if (roomId != null) {
-                messagingTemplate.convertAndSend(
-                    "/topic/room/" + roomId + "/users",
-                    onlineUserService.getUsersInRoom(roomId)
-                );
+                roomPresenceService.userLeft(roomId, username);
             }
 
             // Broadcast global online user count update
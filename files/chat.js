@@ -1,6 +1,6 @@
 /**
  * ChatWave — Real-Time Chat Client
- * Uses SockJS + STOMP over Spring Boot WebSocket broker
+ * Uses STOMP over native WebSocket (/ws-native), falling back to SockJS (/ws)
  */
 (function () {
     'use strict';
@@ -14,6 +14,25 @@
     let isTyping = false;
     let typingUsers = {};   // username → timer
     let rooms = [];
+    let unreadCounts = {};      // roomId → unread messages, pushed on /user/queue/unread
+    let directoryVersion = -1;  // version of the last applied room directory update
+    let pendingDeltas = [];     // deltas that arrived before the snapshot
+    let memberPage = -1;        // last member-list page loaded for a large room
+    let reconnectAttempt = 0;   // consecutive failed connects, drives the backoff
+    let serverRetryHintMs = 0;  // minimum wait requested by the server (drain notice / Retry-After)
+    let pendingSends = {};      // clientMessageId → send body, until the server acks it
+    let seenSends = new Set();  // sender + clientMessageId of rendered broadcasts
+    const nativeSupported = 'WebSocket' in window;
+    let useSockJS = !nativeSupported;  // true after repeated native failures, until a probe succeeds
+    let nativeFailures = 0;            // consecutive native connects that never got through
+    let nativeProbeTimer = null;
+
+    const RECONNECT_BASE_MS = 1000;
+    const RECONNECT_MAX_MS  = 30000;
+    const SEND_RETRY_MS     = 1000;   // resend delay after a failed ack
+    const SEEN_SENDS_MAX    = 500;    // broadcast send ids remembered for dedup
+    const NATIVE_MAX_FAILURES = 3;    // native failures in a row before falling back to SockJS
+    const NATIVE_PROBE_MS   = 60000;  // while on SockJS, how often to check if native works again
 
     // ── DOM refs ───────────────────────────────────────────────────────────────
     const $ = id => document.getElementById(id);
@@ -60,21 +79,85 @@
     // ── Connection ─────────────────────────────────────────────────────────────
     function connect(username) {
         setConnectionStatus('connecting');
-        const socket = new SockJS('/ws');
-        stompClient = Stomp.over(socket);
+        const viaSockJS = useSockJS;
+        let established = false;
+        stompClient = viaSockJS ? Stomp.over(new SockJS('/ws')) : Stomp.client(nativeUrl());
         stompClient.debug = null; // silence STOMP logs
 
         stompClient.connect({}, () => {
-            console.log('✓ WebSocket connected');
+            console.log('✓ WebSocket connected' + (viaSockJS ? ' (SockJS)' : ''));
+            established = true;
+            if (viaSockJS) {
+                scheduleNativeProbe();
+            } else {
+                nativeFailures = 0;
+            }
             setConnectionStatus('connected');
+            reconnectAttempt = 0;
+            serverRetryHintMs = 0;
+            subscriptions = {};  // old room subscriptions died with the previous socket
             currentUser = username;
             showApp();
-            loadRooms();
             subscribeToGlobal();
+            subscribeToDirectory();
         }, (error) => {
             console.error('WebSocket error:', error);
             setConnectionStatus('disconnected');
-            setTimeout(() => connect(username), 3000); // auto-reconnect
+            scheduleReconnect(username, !viaSockJS && !established);
+        });
+    }
+
+    // Only called when the server is up and admitting, so the failure is down to the transport
+    function countNativeFailure() {
+        if (useSockJS || ++nativeFailures < NATIVE_MAX_FAILURES) return;
+        // Native WebSocket keeps failing (proxy, old browser) — use SockJS until a probe says otherwise
+        console.log('Native WebSocket unavailable, falling back to SockJS');
+        useSockJS = true;
+    }
+
+    // While on the SockJS fallback, periodically try a bare native handshake; if it works,
+    // the next reconnect goes native again. The live SockJS session is left alone.
+    function scheduleNativeProbe() {
+        if (!nativeSupported || nativeProbeTimer) return;
+        nativeProbeTimer = setTimeout(() => {
+            nativeProbeTimer = null;
+            if (!useSockJS) return;
+            const probe = new WebSocket(nativeUrl(), ['v12.stomp']);
+            probe.onopen = () => {
+                console.log('Native WebSocket reachable again, using it on next connect');
+                useSockJS = false;
+                nativeFailures = 0;
+                probe.close();
+            };
+            probe.onerror = () => scheduleNativeProbe();
+        }, NATIVE_PROBE_MS);
+    }
+
+    function nativeUrl() {
+        const scheme = location.protocol === 'https:' ? 'wss://' : 'ws://';
+        return scheme + location.host + '/ws-native';
+    }
+
+    // Full-jitter exponential backoff, never sooner than the server asked for.
+    // Without a drain hint, ask /api/admission — SockJS hides the handshake's Retry-After.
+    // The same answer decides whether a failed native connect counts toward the SockJS
+    // fallback: not while the server is draining, refusing connections or unreachable.
+    function scheduleReconnect(username, nativeFailed) {
+        const hint = serverRetryHintMs > 0
+            ? Promise.resolve(serverRetryHintMs)
+            : fetch('/api/admission')
+                .then(r => r.json())
+                .then(data => (data.retryAfterSeconds || 0) * 1000)
+                .catch(() => null);  // unreachable — the node is down or restarting
+
+        hint.then(hintMs => {
+            if (nativeFailed && hintMs === 0) countNativeFailure();
+            const ceiling = Math.min(RECONNECT_MAX_MS, RECONNECT_BASE_MS * Math.pow(2, reconnectAttempt));
+            const delay = Math.max(hintMs || 0, Math.random() * ceiling);
+            reconnectAttempt++;
+            serverRetryHintMs = 0;
+            console.log(`Reconnecting in ${Math.round(delay)} ms`);
+            setTimeout(() => connect(username), delay);
         });
     }
 
@@ -99,6 +182,42 @@
             renderHistory(data.messages);
         });
 
+        // Unread counts for rooms we're not in (on join + coalesced updates)
+        stompClient.subscribe('/user/queue/unread', (msg) => {
+            const data = JSON.parse(msg.body);
+            unreadCounts = data.unread || {};
+            renderRoomList();
+        });
+
+        // Send acks — the message is persisted, stop retrying it.
+        // A failed ack means it wasn't: resend shortly with the same id.
+        stompClient.subscribe('/user/queue/ack', (msg) => {
+            const ack = JSON.parse(msg.body);
+            if (!ack.failed) {
+                delete pendingSends[ack.clientMessageId];
+                return;
+            }
+            setTimeout(() => {
+                const body = pendingSends[ack.clientMessageId];
+                if (body && stompClient && stompClient.connected) {
+                    stompClient.send('/app/chat.send', {}, JSON.stringify(body));
+                }
+            }, SEND_RETRY_MS);
+        });
+
+        // Server is draining for a deploy — remember when it wants us back
+        stompClient.subscribe('/user/queue/drain', (msg) => {
+            const notice = JSON.parse(msg.body);
+            serverRetryHintMs = notice.retryAfterMs;
+        });
+
+        // Member list pages (large rooms)
+        stompClient.subscribe('/user/queue/users', (msg) => {
+            const data = JSON.parse(msg.body);
+            if (data.roomId !== currentRoom) return;
+            appendMemberPage(data);
+        });
+
         // Global online count
         stompClient.subscribe('/topic/online-count', (msg) => {
             const data = JSON.parse(msg.body);
@@ -106,26 +225,61 @@
         });
     }
 
-    // ── Load Rooms via REST ────────────────────────────────────────────────────
-    function loadRooms() {
-        fetch('/api/rooms')
-            .then(r => r.json())
-            .then(data => {
-                rooms = data;
-                renderRoomList();
-                if (rooms.length > 0) joinRoom(rooms[0].id);
-            })
-            .catch(e => console.error('Failed to load rooms:', e));
+    // ── Room Directory (snapshot + pushed deltas) ──────────────────────────────
+    function subscribeToDirectory() {
+        directoryVersion = -1;
+        pendingDeltas = [];
+
+        // Deltas first so nothing published after the snapshot is missed
+        stompClient.subscribe('/topic/rooms', (msg) => {
+            const delta = JSON.parse(msg.body);
+            if (directoryVersion < 0) {
+                pendingDeltas.push(delta);
+            } else {
+                applyDirectoryDelta(delta);
+            }
+        });
+
+        // One-shot snapshot, answered directly by the server
+        stompClient.subscribe('/app/rooms', (msg) => {
+            const snapshot = JSON.parse(msg.body);
+            rooms = snapshot.rooms;
+            directoryVersion = snapshot.version;
+            pendingDeltas.forEach(applyDirectoryDelta);
+            pendingDeltas = [];
+            renderRoomList();
+            if (currentRoom) {
+                // Reconnected — rejoin the room we were in and retry unacked sends
+                const roomId = currentRoom;
+                currentRoom = null;
+                joinRoom(roomId);
+                resendPending();
+            } else if (rooms.length > 0) {
+                joinRoom(rooms[0].id);
+            }
+        });
+    }
+
+    function applyDirectoryDelta(delta) {
+        if (delta.version <= directoryVersion) return;
+        directoryVersion = delta.version;
+        delta.rooms.forEach(update => {
+            const i = rooms.findIndex(r => r.id === update.id);
+            if (i >= 0) rooms[i] = update; else rooms.push(update);
+        });
+        renderRoomList();
     }
 
     function renderRoomList() {
         UI.roomList.innerHTML = '';
         rooms.forEach(room => {
             const el = document.createElement('div');
-            el.className = 'room-item';
+            el.className = 'room-item' + (room.id === currentRoom ? ' active' : '');
             el.dataset.roomId = room.id;
+            const unread = room.id === currentRoom ? 0 : (unreadCounts[room.id] || 0);
             el.innerHTML = `
                 <span class="room-item-name">${escHtml(room.name)}</span>
+                ${unread > 0 ? `<span class="room-unread" title="unread">${unread > 99 ? '99+' : unread}</span>` : ''}
                 ${room.onlineCount > 0 ? `<span class="room-badge">${room.onlineCount}</span>` : ''}
             `;
             el.addEventListener('click', () => joinRoom(room.id));
@@ -143,6 +297,7 @@
         }
 
         currentRoom = roomId;
+        unreadCounts[roomId] = 0;
         const room = rooms.find(r => r.id === roomId);
 
         // Update header
@@ -181,6 +336,7 @@
         Object.values(subscriptions).forEach(sub => sub.unsubscribe());
         subscriptions = {};
         typingUsers = {};
+        memberPage = -1;
     }
 
     function subscribeToRoom(roomId) {
@@ -188,6 +344,7 @@
         subscriptions.messages = stompClient.subscribe(
             '/topic/room/' + roomId, (msg) => {
                 const payload = JSON.parse(msg.body);
+                if (isRepeatBroadcast(payload)) return;
                 appendMessage(payload);
             }
         );
@@ -204,11 +361,17 @@
         subscriptions.users = stompClient.subscribe(
             '/topic/room/' + roomId + '/users', (msg) => {
                 const data = JSON.parse(msg.body);
-                renderUsersList(data.users);
-                UI.roomOnline.textContent = data.users.length;
+                if (data.large) {
+                    // Large room: counts + recent joiners only; full list is paged on demand
+                    if (memberPage < 0) renderLargeRoomUsers(data);
+                } else {
+                    memberPage = -1;
+                    renderUsersList(data.users);
+                }
+                UI.roomOnline.textContent = data.count;
                 // Update room badge
                 const badge = document.querySelector(`.room-item[data-room-id="${roomId}"] .room-badge`);
-                if (badge) badge.textContent = data.users.length;
+                if (badge) badge.textContent = data.count;
             }
         );
     }
@@ -218,17 +381,41 @@
         const content = UI.messageInput.value.trim();
         if (!content || !currentRoom) return;
 
-        stompClient.send('/app/chat.send', {}, JSON.stringify({
+        const body = {
             content: content,
             sender: currentUser,
-            roomId: currentRoom
-        }));
+            roomId: currentRoom,
+            clientMessageId: newClientMessageId()
+        };
+        pendingSends[body.clientMessageId] = body;
+        stompClient.send('/app/chat.send', {}, JSON.stringify(body));
 
         UI.messageInput.value = '';
         updateCharCount();
         stopTyping();
     }
 
+    // Same id on every retry — the server drops repeats it has already accepted
+    function resendPending() {
+        Object.values(pendingSends).forEach(body =>
+            stompClient.send('/app/chat.send', {}, JSON.stringify(body)));
+    }
+
+    // A send that failed to persist is broadcast again on resend — render it once
+    function isRepeatBroadcast(payload) {
+        if (!payload.clientMessageId) return false;
+        const key = payload.sender + '\u0000' + payload.clientMessageId;
+        if (seenSends.has(key)) return true;
+        seenSends.add(key);
+        if (seenSends.size > SEEN_SENDS_MAX) seenSends.delete(seenSends.values().next().value);
+        return false;
+    }
+
+    function newClientMessageId() {
+        if (window.crypto && crypto.randomUUID) return crypto.randomUUID();
+        return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2, 10);
+    }
+
     // ── Typing Indicator ───────────────────────────────────────────────────────
     function sendTyping(typing) {
         if (!currentRoom) return;
@@ -367,17 +554,52 @@
     // ── Render Users List ──────────────────────────────────────────────────────
     function renderUsersList(users) {
         UI.usersList.innerHTML = '';
-        users.forEach(username => {
-            const avClass = avatarClass(username);
-            const isMe = username === currentUser;
-            const li = document.createElement('li');
-            li.className = `user-item${isMe ? ' is-me' : ''}`;
-            li.innerHTML = `
-                <div class="user-item-avatar ${avClass}">${username.charAt(0).toUpperCase()}</div>
-                <span class="user-item-name">${escHtml(username)}</span>
-            `;
-            UI.usersList.appendChild(li);
-        });
+        users.forEach(username => UI.usersList.appendChild(buildUserItem(username)));
+    }
+
+    function buildUserItem(username) {
+        const avClass = avatarClass(username);
+        const isMe = username === currentUser;
+        const li = document.createElement('li');
+        li.className = `user-item${isMe ? ' is-me' : ''}`;
+        li.innerHTML = `
+            <div class="user-item-avatar ${avClass}">${username.charAt(0).toUpperCase()}</div>
+            <span class="user-item-name">${escHtml(username)}</span>
+        `;
+        return li;
+    }
+
+    function renderLargeRoomUsers(data) {
+        renderUsersList(data.recentlyJoined || []);
+        appendShowAllMembers(`Show all ${data.count} members`, 0);
+    }
+
+    function appendMemberPage(data) {
+        if (data.page === 0) UI.usersList.innerHTML = '';
+        const more = UI.usersList.querySelector('.users-more');
+        if (more) more.remove();
+        memberPage = data.page;
+        data.users.forEach(username => UI.usersList.appendChild(buildUserItem(username)));
+        if ((data.page + 1) * data.size < data.total) {
+            appendShowAllMembers('Load more…', data.page + 1);
+        }
+    }
+
+    function appendShowAllMembers(label, page) {
+        const li = document.createElement('li');
+        li.className = 'users-more';
+        li.textContent = label;
+        li.addEventListener('click', () => requestMemberPage(page));
+        UI.usersList.appendChild(li);
+    }
+
+    function requestMemberPage(page) {
+        if (!currentRoom) return;
+        stompClient.send('/app/chat.users', {}, JSON.stringify({
+            roomId: currentRoom,
+            page: page,
+            size: 100
+        }));
     }
 
     // ── UI Helpers ─────────────────────────────────────────────────────────────